@@ -3,11 +3,18 @@ package datameshmanager.databricks;
 import com.databricks.sdk.AccountClient;
 import com.databricks.sdk.WorkspaceClient;
 import com.databricks.sdk.core.DatabricksConfig;
+import com.databricks.sdk.core.commons.CommonsHttpClient;
+import com.databricks.sdk.core.http.HttpClient;
 import datameshmanager.sdk.DataMeshManagerAssetsSynchronizer;
 import datameshmanager.sdk.DataMeshManagerClient;
 import datameshmanager.sdk.DataMeshManagerEventListener;
 import datameshmanager.sdk.DataMeshManagerStateRepositoryRemote;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
 import java.util.Objects;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -27,22 +34,70 @@ public class Application {
     SpringApplication.run(Application.class, args);
   }
 
+  /**
+   * Connection pool shared by the workspace and account clients, so that connections are kept alive and reused across
+   * requests instead of doing a new TLS handshake. Responses are requested gzip compressed by default.
+   */
+  @Bean(destroyMethod = "close")
+  public PoolingHttpClientConnectionManager databricksConnectionManager(DatabricksProperties properties) {
+    var httpProperties = getHttpProperties(properties);
+    var connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(Objects.requireNonNullElse(httpProperties.maxconnections(), 100));
+    connectionManager.setDefaultMaxPerRoute(Objects.requireNonNullElse(httpProperties.maxconnectionsperhost(), 20));
+    connectionManager.setValidateAfterInactivity(10_000);
+    return connectionManager;
+  }
+
+  @Bean(destroyMethod = "close")
+  public DatabricksIdleConnectionEvictor databricksIdleConnectionEvictor(DatabricksProperties properties,
+      PoolingHttpClientConnectionManager databricksConnectionManager) {
+    var keepalive = Objects.requireNonNullElse(getHttpProperties(properties).keepalive(), Duration.ofMinutes(5));
+    return new DatabricksIdleConnectionEvictor(databricksConnectionManager, keepalive);
+  }
+
+  private static DatabricksProperties.HttpProperties getHttpProperties(DatabricksProperties properties) {
+    return Objects.requireNonNullElse(properties.http(), new DatabricksProperties.HttpProperties(null, null, null));
+  }
+
   @Bean
-  public WorkspaceClient workspaceClient(DatabricksProperties properties) {
+  public MeterBinder databricksConnectionManagerMetrics(PoolingHttpClientConnectionManager databricksConnectionManager) {
+    return registry -> {
+      Gauge.builder("databricks.http.pool.leased", databricksConnectionManager, m -> m.getTotalStats().getLeased())
+          .description("Connections currently in use").register(registry);
+      Gauge.builder("databricks.http.pool.available", databricksConnectionManager, m -> m.getTotalStats().getAvailable())
+          .description("Idle connections kept alive for reuse").register(registry);
+      Gauge.builder("databricks.http.pool.pending", databricksConnectionManager, m -> m.getTotalStats().getPending())
+          .description("Requests waiting for a connection").register(registry);
+      Gauge.builder("databricks.http.pool.max", databricksConnectionManager, m -> m.getTotalStats().getMax())
+          .description("Maximum number of connections").register(registry);
+    };
+  }
+
+  @Bean
+  public HttpClient databricksHttpClient(PoolingHttpClientConnectionManager databricksConnectionManager) {
+    return new CommonsHttpClient.Builder()
+        .withConnectionManager(databricksConnectionManager)
+        .build();
+  }
+
+  @Bean
+  public WorkspaceClient workspaceClient(DatabricksProperties properties, HttpClient databricksHttpClient) {
     var databricksConfig = new DatabricksConfig()
         .setHost(properties.workspace().host())
         .setClientId(properties.workspace().clientId())
-        .setClientSecret(properties.workspace().clientSecret());
+        .setClientSecret(properties.workspace().clientSecret())
+        .setHttpClient(databricksHttpClient);
     // TODO support GCP and Azure
     return new WorkspaceClient(databricksConfig);
   }
   @Bean
-  public AccountClient accountClient(DatabricksProperties properties) {
+  public AccountClient accountClient(DatabricksProperties properties, HttpClient databricksHttpClient) {
     var databricksConfig = new DatabricksConfig()
         .setHost(Objects.requireNonNullElse(properties.account().host(), "https://accounts.cloud.databricks.com"))
         .setAccountId(Objects.requireNonNull(properties.account().accountId(), "Databricks account ID is required"))
         .setClientId(properties.account().clientId())
-        .setClientSecret(properties.account().clientSecret());
+        .setClientSecret(properties.account().clientSecret())
+        .setHttpClient(databricksHttpClient);
     return new AccountClient(databricksConfig);
   }
 
@@ -61,7 +116,9 @@ public class Application {
       AccountClient accountClient,
       TaskExecutor taskExecutor) {
     var connectorid = databricksProperties.accessmanagement().connectorid();
-    var eventHandler = new DatabricksAccessManagementHandler(client, workspaceClient,   accountClient);
+    var servicePrincipalCache = new DatabricksServicePrincipalCache(workspaceClient);
+    servicePrincipalCache.load();
+    var eventHandler = new DatabricksAccessManagementHandler(client, workspaceClient, accountClient, servicePrincipalCache);
     var stateRepository = new DataMeshManagerStateRepositoryRemote(connectorid, client);
     var dataMeshManagerEventListener = new DataMeshManagerEventListener(connectorid, "accessmanagement", client, eventHandler, stateRepository);
     taskExecutor.execute(dataMeshManagerEventListener::start);
@@ -74,10 +131,12 @@ public class Application {
       DatabricksProperties databricksProperties,
       DataMeshManagerClient client,
       WorkspaceClient workspaceClient,
-      TaskExecutor taskExecutor) {
+      TaskExecutor taskExecutor,
+      ObjectProvider<DatabricksLineageEnricher> lineageEnricher) {
     var connectorid = databricksProperties.assets().connectorid();
     var stateRepository = new DataMeshManagerStateRepositoryRemote(connectorid, client);
-    var assetsSupplier = new DatabricksAssetsSupplier(workspaceClient, stateRepository, databricksProperties);
+    var assetsSupplier = new DatabricksAssetsSupplier(workspaceClient, stateRepository, databricksProperties,
+        lineageEnricher.getIfAvailable());
     var dataMeshManagerAssetsSynchronizer = new DataMeshManagerAssetsSynchronizer(connectorid, client, assetsSupplier);
     if (databricksProperties.assets().pollinterval() != null) {
       dataMeshManagerAssetsSynchronizer.setDelay(databricksProperties.assets().pollinterval());
@@ -87,6 +146,16 @@ public class Application {
     return dataMeshManagerAssetsSynchronizer;
   }
 
+  @Bean(destroyMethod = "shutdown")
+  @ConditionalOnProperty(value = "datameshmanager.client.databricks.assets.lineage.enabled", havingValue = "true")
+  public DatabricksLineageEnricher databricksLineageEnricher(DatabricksProperties databricksProperties,
+      WorkspaceClient workspaceClient) {
+    var lineageProperties = databricksProperties.assets().lineage();
+    return new DatabricksLineageEnricher(workspaceClient,
+        Objects.requireNonNullElse(lineageProperties.concurrency(), 4),
+        Objects.requireNonNullElse(lineageProperties.ttl(), Duration.ofHours(1)));
+  }
+
   @Bean
   public SimpleAsyncTaskExecutor taskExecutor() {
     return new SimpleAsyncTaskExecutor();
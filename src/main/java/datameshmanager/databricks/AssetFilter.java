@@ -0,0 +1,105 @@
+package datameshmanager.databricks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Include and exclude rules for catalogs, schemas or tables, compiled once into a regular expression for the name and
+ * one for the full name.
+ * <p>
+ * A rule is either a glob or, with the prefix {@code regex:}, a regular expression. Globs support {@code *} and
+ * {@code ?}, which do not match a {@code .}. A glob without a {@code .} is matched against the name (e.g.
+ * {@code information_schema}), a glob with a {@code .} is matched against the full name (e.g. {@code dev_*.*}).
+ * Regular expressions are matched against the whole full name (e.g. {@code regex:dev_.*\.tmp_\d+}). Rules that
+ * contain a comma have to be configured as indexed properties (e.g. {@code tables.exclude[0]=regex:.*_\d{2,4}}),
+ * because comma-separated property values are split at every comma.
+ * <p>
+ * A name is included if it matches any include rule (or there are none) and no exclude rule.
+ */
+public class AssetFilter {
+
+  private static final String REGEX_PREFIX = "regex:";
+
+  private final Rules include;
+  private final Rules exclude;
+
+  private AssetFilter(Rules include, Rules exclude) {
+    this.include = include;
+    this.exclude = exclude;
+  }
+
+  public static AssetFilter of(List<String> include, List<String> exclude) {
+    return new AssetFilter(Rules.compile(include), Rules.compile(exclude));
+  }
+
+  public boolean includes(String name, String fullName) {
+    if (include != null && !include.matches(name, fullName)) {
+      return false;
+    }
+    return exclude == null || !exclude.matches(name, fullName);
+  }
+
+  private record Rules(Pattern namePattern, Pattern fullNamePattern) {
+
+    boolean matches(String name, String fullName) {
+      return (namePattern != null && namePattern.matcher(name).matches())
+          || (fullNamePattern != null && fullNamePattern.matcher(fullName).matches());
+    }
+
+    static Rules compile(List<String> rules) {
+      List<String> nameRegexes = new ArrayList<>();
+      List<String> fullNameRegexes = new ArrayList<>();
+      if (rules != null) {
+        for (var rule : rules) {
+          if (rule == null || rule.isBlank()) {
+            continue;
+          }
+          rule = rule.trim();
+          if (rule.startsWith(REGEX_PREFIX)) {
+            fullNameRegexes.add(rule.substring(REGEX_PREFIX.length()));
+          } else if (rule.contains(".")) {
+            fullNameRegexes.add(globToRegex(rule));
+          } else {
+            nameRegexes.add(globToRegex(rule));
+          }
+        }
+      }
+      if (nameRegexes.isEmpty() && fullNameRegexes.isEmpty()) {
+        return null;
+      }
+      return new Rules(toPattern(nameRegexes), toPattern(fullNameRegexes));
+    }
+
+    private static Pattern toPattern(List<String> regexes) {
+      if (regexes.isEmpty()) {
+        return null;
+      }
+      return Pattern.compile(regexes.stream()
+          .map(regex -> "(?:" + regex + ")")
+          .collect(Collectors.joining("|")));
+    }
+  }
+
+  private static String globToRegex(String glob) {
+    var regex = new StringBuilder();
+    var literal = new StringBuilder();
+    for (char c : glob.toCharArray()) {
+      if (c == '*' || c == '?') {
+        if (!literal.isEmpty()) {
+          regex.append(Pattern.quote(literal.toString()));
+          literal.setLength(0);
+        }
+        regex.append(c == '*' ? "[^.]*" : "[^.]");
+      } else {
+        literal.append(c);
+      }
+    }
+    if (!literal.isEmpty()) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return regex.toString();
+  }
+
+}
@@ -0,0 +1,300 @@
+package datameshmanager.databricks;
+
+import datameshmanager.sdk.client.model.Asset;
+import datameshmanager.sdk.client.model.AssetColumnsInner;
+import datameshmanager.sdk.client.model.AssetRelationshipsInner;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A compact, memory-mapped snapshot of the synchronized assets: their ids, content fingerprints and updatedAt
+ * timestamps, and the lastUpdatedAt watermark of the run that wrote it.
+ * <p>
+ * The file is columnar: a header ({@code magic, version, count, lastUpdatedAt}), followed by the fingerprints, the
+ * updatedAt timestamps, the offsets of the ids and the UTF-8 encoded ids. Entries are sorted by id, so that an id can
+ * be looked up by binary search without reading the whole file.
+ * <p>
+ * Two snapshots can be compared from the command line:
+ * {@code java -cp app.jar -Dloader.main=datameshmanager.databricks.AssetSnapshot org.springframework.boot.loader.launch.PropertiesLauncher old.snapshot new.snapshot}
+ */
+public class AssetSnapshot {
+
+  private static final int MAGIC = 0x444D4D53; // "DMMS"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+  private final ByteBuffer buffer;
+  private final int count;
+  private final long lastUpdatedAt;
+  private final int fingerprintsOffset;
+  private final int updatedAtsOffset;
+  private final int idOffsetsOffset;
+  private final int idsOffset;
+
+  private AssetSnapshot(ByteBuffer buffer) {
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("Not an asset snapshot");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("Unsupported asset snapshot version " + buffer.getInt(4));
+    }
+    this.buffer = buffer;
+    this.count = buffer.getInt(8);
+    this.lastUpdatedAt = buffer.getLong(12);
+    if (count < 0 || HEADER_SIZE + count * (8L + 8L + 4L) + 4L > buffer.limit()) {
+      throw new IllegalArgumentException("Corrupt asset snapshot, invalid count " + count);
+    }
+    this.fingerprintsOffset = HEADER_SIZE;
+    this.updatedAtsOffset = fingerprintsOffset + count * 8;
+    this.idOffsetsOffset = updatedAtsOffset + count * 8;
+    this.idsOffset = idOffsetsOffset + (count + 1) * 4;
+    validateIdOffsets();
+  }
+
+  /**
+   * Checks that the id offsets start at 0, do not decrease and that the last id ends within the file.
+   */
+  private void validateIdOffsets() {
+    int previous = 0;
+    for (int i = 0; i <= count; i++) {
+      int offset = buffer.getInt(idOffsetsOffset + i * 4);
+      if (i == 0 ? offset != 0 : offset < previous) {
+        throw new IllegalArgumentException("Corrupt asset snapshot, invalid id offset at " + i);
+      }
+      previous = offset;
+    }
+    if ((long) idsOffset + previous > buffer.limit()) {
+      throw new IllegalArgumentException("Corrupt asset snapshot, ids exceed the file size");
+    }
+  }
+
+  public static AssetSnapshot read(Path path) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new AssetSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public int size() {
+    return count;
+  }
+
+  public long lastUpdatedAt() {
+    return lastUpdatedAt;
+  }
+
+  public String id(int index) {
+    var start = buffer.getInt(idOffsetsOffset + index * 4);
+    var end = buffer.getInt(idOffsetsOffset + (index + 1) * 4);
+    var bytes = new byte[end - start];
+    buffer.get(idsOffset + start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public long fingerprint(int index) {
+    return buffer.getLong(fingerprintsOffset + index * 8);
+  }
+
+  public long updatedAt(int index) {
+    return buffer.getLong(updatedAtsOffset + index * 8);
+  }
+
+  /**
+   * @return the index of the id, or -1 if the snapshot does not contain it
+   */
+  public int indexOf(String id) {
+    var key = id.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compareId(mid, key);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return true if the snapshot contains the asset with the same fingerprint and an updatedAt that is not older
+   */
+  public boolean contains(String id, long fingerprint, long updatedAt) {
+    var index = indexOf(id);
+    return index >= 0 && fingerprint(index) == fingerprint && updatedAt(index) >= updatedAt;
+  }
+
+  private int compareId(int index, byte[] key) {
+    var start = idsOffset + buffer.getInt(idOffsetsOffset + index * 4);
+    var length = buffer.getInt(idOffsetsOffset + (index + 1) * 4) - buffer.getInt(idOffsetsOffset + index * 4);
+    for (int i = 0; i < Math.min(length, key.length); i++) {
+      int cmp = Byte.compareUnsigned(buffer.get(start + i), key[i]);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return Integer.compare(length, key.length);
+  }
+
+  /**
+   * 64-bit FNV-1a hash of the fields of the asset, in a fixed order: id, name, qualified name, type, description,
+   * properties sorted by key, relationships and columns. Each value is prefixed with its length, so that the boundaries
+   * between fields are part of the hash.
+   */
+  public static long fingerprint(Asset asset) {
+    var fingerprint = new Fingerprint().add(asset.getId());
+    var info = asset.getInfo();
+    if (info != null) {
+      fingerprint.add(info.getName()).add(info.getQualifiedName()).add(info.getType()).add(info.getDescription());
+    } else {
+      fingerprint.add(null).add(null).add(null).add(null);
+    }
+
+    var properties = asset.getProperties() != null ? new TreeMap<>(asset.getProperties()) : new TreeMap<String, Object>();
+    fingerprint.add(properties.size());
+    properties.forEach((key, value) -> fingerprint.add(key).add(value != null ? value.toString() : null));
+
+    var relationships = asset.getRelationships() != null ? asset.getRelationships() : List.<AssetRelationshipsInner>of();
+    fingerprint.add(relationships.size());
+    relationships.forEach(relationship -> fingerprint.add(relationship.getRelationshipType()).add(relationship.getAssetId()));
+
+    var columns = asset.getColumns() != null ? asset.getColumns() : List.<AssetColumnsInner>of();
+    fingerprint.add(columns.size());
+    columns.forEach(column -> fingerprint.add(column.getName()).add(column.getType()).add(column.getDescription()));
+
+    return fingerprint.hash;
+  }
+
+  private static class Fingerprint {
+
+    private long hash = 0xcbf29ce484222325L;
+
+    Fingerprint add(String value) {
+      if (value == null) {
+        return add(-1);
+      }
+      var bytes = value.getBytes(StandardCharsets.UTF_8);
+      add(bytes.length);
+      for (byte b : bytes) {
+        addByte(b);
+      }
+      return this;
+    }
+
+    Fingerprint add(int value) {
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        addByte((byte) (value >>> shift));
+      }
+      return this;
+    }
+
+    private void addByte(byte b) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public Builder add(String id, long fingerprint, long updatedAt) {
+      entries.put(id, new Entry(id.getBytes(StandardCharsets.UTF_8), fingerprint, updatedAt));
+      return this;
+    }
+
+    public int size() {
+      return entries.size();
+    }
+
+    /**
+     * Writes the snapshot to a temporary file first and then replaces the target file.
+     */
+    public void write(Path path, long lastUpdatedAt) throws IOException {
+      var sortedEntries = entries.values().stream().sorted((a, b) -> Arrays.compareUnsigned(a.id(), b.id())).toList();
+      var idsLength = sortedEntries.stream().mapToInt(entry -> entry.id().length).sum();
+      var buffer = ByteBuffer.allocate(HEADER_SIZE + sortedEntries.size() * (8 + 8 + 4) + 4 + idsLength);
+
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(sortedEntries.size()).putLong(lastUpdatedAt);
+      sortedEntries.forEach(entry -> buffer.putLong(entry.fingerprint()));
+      sortedEntries.forEach(entry -> buffer.putLong(entry.updatedAt()));
+      int offset = 0;
+      for (var entry : sortedEntries) {
+        buffer.putInt(offset);
+        offset += entry.id().length;
+      }
+      buffer.putInt(offset);
+      sortedEntries.forEach(entry -> buffer.put(entry.id()));
+      buffer.flip();
+
+      var directory = path.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      var tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+      try (var channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private record Entry(byte[] id, long fingerprint, long updatedAt) {
+
+    }
+  }
+
+  /**
+   * Prints the assets that were added, removed or changed between two snapshots.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: AssetSnapshot <old snapshot> <new snapshot>");
+      System.exit(1);
+    }
+
+    var oldSnapshot = read(Path.of(args[0]));
+    var newSnapshot = read(Path.of(args[1]));
+    int added = 0;
+    int removed = 0;
+    int changed = 0;
+    for (int i = 0; i < newSnapshot.size(); i++) {
+      var id = newSnapshot.id(i);
+      var oldIndex = oldSnapshot.indexOf(id);
+      if (oldIndex < 0) {
+        System.out.println("+ " + id);
+        added++;
+      } else if (oldSnapshot.fingerprint(oldIndex) != newSnapshot.fingerprint(i)) {
+        System.out.println("~ " + id);
+        changed++;
+      }
+    }
+    for (int i = 0; i < oldSnapshot.size(); i++) {
+      var id = oldSnapshot.id(i);
+      if (newSnapshot.indexOf(id) < 0) {
+        System.out.println("- " + id);
+        removed++;
+      }
+    }
+    System.out.printf("%d added, %d removed, %d changed%n", added, removed, changed);
+  }
+
+}
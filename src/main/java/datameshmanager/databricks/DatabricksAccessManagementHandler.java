@@ -39,14 +39,17 @@ public class DatabricksAccessManagementHandler implements DataMeshManagerEventHa
   private final DataMeshManagerClient client;
   private final WorkspaceClient workspaceClient;
   private final AccountClient accountClient;
+  private final DatabricksServicePrincipalCache servicePrincipalCache;
 
   public DatabricksAccessManagementHandler(
       DataMeshManagerClient client,
       WorkspaceClient workspaceClient,
-      AccountClient accountClient) {
+      AccountClient accountClient,
+      DatabricksServicePrincipalCache servicePrincipalCache) {
     this.client = client;
     this.workspaceClient = workspaceClient;
     this.accountClient = accountClient;
+    this.servicePrincipalCache = servicePrincipalCache;
   }
 
   @Override
@@ -127,8 +130,7 @@ public class DatabricksAccessManagementHandler implements DataMeshManagerEventHa
       case DATA_PRODUCT -> {
         // create a service principal for the consumer data product
         log.info("Creating service principal for consumer data product {}", access.getConsumer().getDataProductId());
-        var consumerDataProductServicePrincipalId = createDatabricksServiceProvider(access.getConsumer().getDataProductId());
-        addMemberToGroup(accessGroup, consumerDataProductServicePrincipalId);
+        addServicePrincipalToGroup(accessGroup, access.getConsumer().getDataProductId());
 
         // also add the consumer team to the access group
         log.info("Adding consumer team to access group {}", accessGroupName);
@@ -259,24 +261,23 @@ public class DatabricksAccessManagementHandler implements DataMeshManagerEventHa
     USER
   }
 
-  private String createDatabricksServiceProvider(String dataProductId) {
-    DataProduct dataProduct = getDataProduct(dataProductId);
-    String servicePrincipalId = getServicePrincipalId(dataProduct);
-
-    ServicePrincipal servicePrincipal = workspaceClient.servicePrincipals().get(servicePrincipalId);
-
-    if (servicePrincipal == null) {
-      log.info("Creating service principal for data product {}", dataProductId);
-      servicePrincipal = workspaceClient.servicePrincipals().create(
-          new ServicePrincipal()
-              .setId(servicePrincipalId)
-              .setDisplayName("Data Product " + dataProduct.getInfo().getTitle())
-              .setExternalId(dataProductId)
-              .setActive(true)
-      );
+  private void addServicePrincipalToGroup(Group group, String dataProductId) {
+    var servicePrincipal = newServicePrincipal(getDataProduct(dataProductId));
+    try {
+      addMemberToGroup(group, servicePrincipalCache.getOrCreate(servicePrincipal).getId());
+    } catch (NotFound e) {
+      // the cached service principal may have been deleted in the meantime, look it up (or create it) once more
+      log.warn("Service principal {} not found, retrying with a fresh lookup", servicePrincipal.getExternalId());
+      servicePrincipalCache.evict(servicePrincipal.getExternalId());
+      addMemberToGroup(group, servicePrincipalCache.getOrCreate(servicePrincipal).getId());
     }
+  }
 
-    return servicePrincipal.getId();
+  private static ServicePrincipal newServicePrincipal(DataProduct dataProduct) {
+    return new ServicePrincipal()
+        .setDisplayName("Data Product " + dataProduct.getInfo().getTitle())
+        .setExternalId(getServicePrincipalId(dataProduct))
+        .setActive(true);
   }
 
   private static String getServicePrincipalId(DataProduct dataProduct) {
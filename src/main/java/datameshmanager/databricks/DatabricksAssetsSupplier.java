@@ -6,16 +6,31 @@ import com.databricks.sdk.service.catalog.CatalogType;
 import com.databricks.sdk.service.catalog.ListCatalogsRequest;
 import com.databricks.sdk.service.catalog.SchemaInfo;
 import com.databricks.sdk.service.catalog.TableInfo;
+import datameshmanager.databricks.DatabricksLineageEnricher.TableLineage;
 import datameshmanager.sdk.DataMeshManagerAssetsProvider;
 import datameshmanager.sdk.DataMeshManagerStateRepository;
 import datameshmanager.sdk.client.model.Asset;
 import datameshmanager.sdk.client.model.AssetColumnsInner;
 import datameshmanager.sdk.client.model.AssetInfo;
 import datameshmanager.sdk.client.model.AssetRelationshipsInner;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,21 +38,78 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
 
   private static final Logger log = LoggerFactory.getLogger(DatabricksAssetsSupplier.class);
 
+  private static final Set<String> LINEAGE_RELATIONSHIP_TYPES = Set.of("upstream", "downstream");
+
   private final WorkspaceClient workspaceClient;
   private final DataMeshManagerStateRepository dataMeshManagerStateRepository;
   private final DatabricksProperties databricksProperties;
+  private final DatabricksLineageEnricher lineageEnricher;
+  private final Map<String, Set<LineageRelationship>> lineageByTableId = new ConcurrentHashMap<>();
+  private final Set<CatalogType> catalogTypes;
+  private final AssetFilter catalogFilter;
+  private final AssetFilter schemaFilter;
+  private final AssetFilter tableFilter;
+  private final String filterHash;
 
   public DatabricksAssetsSupplier(WorkspaceClient workspaceClient, DataMeshManagerStateRepository dataMeshManagerStateRepository,
       DatabricksProperties databricksProperties) {
+    this(workspaceClient, dataMeshManagerStateRepository, databricksProperties, null);
+  }
+
+  /**
+   * @param lineageEnricher optional, if set the lineage of the tables is added as upstream and downstream relationships
+   */
+  public DatabricksAssetsSupplier(WorkspaceClient workspaceClient, DataMeshManagerStateRepository dataMeshManagerStateRepository,
+      DatabricksProperties databricksProperties, DatabricksLineageEnricher lineageEnricher) {
     this.workspaceClient = workspaceClient;
     this.dataMeshManagerStateRepository = dataMeshManagerStateRepository;
     this.databricksProperties = databricksProperties;
+    this.lineageEnricher = lineageEnricher;
+
+    var assetsProperties = databricksProperties.assets();
+    var catalogsProperties = Objects.requireNonNullElse(assetsProperties.catalogs(),
+        new DatabricksProperties.CatalogsProperties(null, null, null));
+    var schemasProperties = Objects.requireNonNullElse(assetsProperties.schemas(),
+        new DatabricksProperties.FilterProperties(null, List.of("information_schema")));
+    var tablesProperties = Objects.requireNonNullElse(assetsProperties.tables(),
+        new DatabricksProperties.FilterProperties(null, null));
+    this.catalogTypes = EnumSet.noneOf(CatalogType.class);
+    this.catalogTypes.addAll(Objects.requireNonNullElse(catalogsProperties.types(), List.of(CatalogType.MANAGED_CATALOG)));
+    this.catalogFilter = AssetFilter.of(catalogsProperties.include(), catalogsProperties.exclude());
+    this.schemaFilter = AssetFilter.of(schemasProperties.include(), schemasProperties.exclude());
+    this.tableFilter = AssetFilter.of(tablesProperties.include(), tablesProperties.exclude());
+    this.filterHash = filterHash(catalogsProperties, schemasProperties, tablesProperties);
+  }
+
+  /**
+   * A hash of the effective filter configuration. It is stored next to the lastUpdatedAt watermark, because assets
+   * that are included by a changed filter are not newer than the watermark and would never be synchronized.
+   */
+  private String filterHash(DatabricksProperties.CatalogsProperties catalogsProperties,
+      DatabricksProperties.FilterProperties schemasProperties, DatabricksProperties.FilterProperties tablesProperties) {
+    var filters = "catalogs.types=" + catalogTypes
+        + "\ncatalogs.include=" + catalogsProperties.include()
+        + "\ncatalogs.exclude=" + catalogsProperties.exclude()
+        + "\nschemas.include=" + schemasProperties.include()
+        + "\nschemas.exclude=" + schemasProperties.exclude()
+        + "\ntables.include=" + tablesProperties.include()
+        + "\ntables.exclude=" + tablesProperties.exclude();
+    return UUID.nameUUIDFromBytes(filters.getBytes(StandardCharsets.UTF_8)).toString();
   }
 
   @Override
   public void fetchAssets(AssetCallback assetCallback) {
     final var databricksLastUpdatedAt = getLastUpdatedAt();
     var databricksLastUpdatedAtThisRunMax = databricksLastUpdatedAt;
+    var previousSnapshot = databricksLastUpdatedAt == 0 ? readSnapshot() : null;
+    if (previousSnapshot != null) {
+      // restore the watermark of the run that wrote the snapshot, so it does not fall back to 0 if nothing changed
+      databricksLastUpdatedAtThisRunMax = Math.max(databricksLastUpdatedAtThisRunMax, previousSnapshot.lastUpdatedAt());
+    }
+    var snapshot = getSnapshotPath() != null ? AssetSnapshot.builder() : null;
+    var run = new SynchronizationRun(databricksLastUpdatedAt, previousSnapshot, snapshot, assetCallback);
+    Map<String, String> tableIdsByFullName = new HashMap<>();
+    List<PendingLineage> pendingLineage = new ArrayList<>();
 
     var catalogs = workspaceClient.catalogs().list(new ListCatalogsRequest());
     for (var catalog : catalogs) {
@@ -46,7 +118,7 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
       }
 
       log.info("Synchronizing catalog {}", catalog.getFullName());
-      catalogToAsset(catalog, databricksLastUpdatedAt).ifPresent(assetCallback::onAssetUpdated);
+      catalogToAsset(catalog).ifPresent(asset -> run.synchronize(asset, catalog.getUpdatedAt()));
 
       var schemas = workspaceClient.schemas().list(catalog.getFullName());
       long schemasCount = 0;
@@ -56,12 +128,22 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
         }
 
         log.info("Synchronizing schema {}", schema.getFullName());
-        schemaToAsset(schema, catalog, databricksLastUpdatedAt).ifPresent(assetCallback::onAssetUpdated);
+        schemaToAsset(schema, catalog).ifPresent(asset -> run.synchronize(asset, schema.getUpdatedAt()));
 
         var tables = workspaceClient.tables().list(schema.getCatalogName(), schema.getName());
         long tablesCount = 0;
         for (var table : tables) {
-          tableToAsset(table, schema, databricksLastUpdatedAt).ifPresent(assetCallback::onAssetUpdated);
+          if (!includeTable(table)) {
+            continue;
+          }
+
+          tableIdsByFullName.put(table.getFullName(), table.getTableId());
+          tableToAsset(table, schema).ifPresent(asset -> {
+            run.synchronize(asset, table.getUpdatedAt(), this::addKnownLineage);
+            if (lineageEnricher != null) {
+              pendingLineage.add(new PendingLineage(asset, lineageEnricher.fetchLineage(table.getFullName())));
+            }
+          });
 
           databricksLastUpdatedAtThisRunMax = Math.max(databricksLastUpdatedAtThisRunMax, table.getUpdatedAt());
           tablesCount++;
@@ -72,7 +154,166 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
       log.info("Synchronized {} schemas in catalog {}", schemasCount, catalog.getFullName());
     }
 
+    synchronizeLineage(pendingLineage, tableIdsByFullName, assetCallback);
+
     setLastUpdatedAt(databricksLastUpdatedAtThisRunMax);
+    writeSnapshot(snapshot, databricksLastUpdatedAtThisRunMax);
+  }
+
+  /**
+   * Decides per asset whether it has to be sent to Data Mesh Manager, and records it for the next snapshot.
+   * Without a lastUpdatedAt watermark (e.g. the remote state was lost or the connector id changed), the previous
+   * snapshot is used instead, so that only assets that are new or have changed since then are sent.
+   */
+  private record SynchronizationRun(Long lastUpdatedAt, AssetSnapshot previousSnapshot, AssetSnapshot.Builder snapshot,
+                                    AssetCallback assetCallback) {
+
+    boolean synchronize(Asset asset, Long updatedAt) {
+      return synchronize(asset, updatedAt, a -> {
+      });
+    }
+
+    /**
+     * @param beforeUpdate called before a changed asset is sent, e.g. to add relationships that are not part of its
+     *                     fingerprint
+     */
+    boolean synchronize(Asset asset, Long updatedAt, Consumer<Asset> beforeUpdate) {
+      long fingerprint = snapshot != null || previousSnapshot != null ? AssetSnapshot.fingerprint(asset) : 0;
+      if (snapshot != null) {
+        snapshot.add(asset.getId(), fingerprint, updatedAt);
+      }
+
+      boolean alreadySynchronized = previousSnapshot != null
+          ? previousSnapshot.contains(asset.getId(), fingerprint, updatedAt)
+          : lastUpdatedAt >= updatedAt;
+      if (alreadySynchronized) {
+        log.info("Asset {} already synchronized", asset.getInfo().getQualifiedName());
+        return false;
+      }
+
+      log.info("Synchronizing asset {}", asset.getInfo().getQualifiedName());
+      beforeUpdate.accept(asset);
+      assetCallback.onAssetUpdated(asset);
+      return true;
+    }
+  }
+
+  private Path getSnapshotPath() {
+    var snapshotfile = databricksProperties.assets().snapshotfile();
+    return snapshotfile != null ? Path.of(snapshotfile) : null;
+  }
+
+  private AssetSnapshot readSnapshot() {
+    var snapshotPath = getSnapshotPath();
+    if (snapshotPath == null || !Files.exists(snapshotPath)) {
+      return null;
+    }
+    try {
+      var snapshot = AssetSnapshot.read(snapshotPath);
+      log.info("No valid lastUpdatedAt in state, using snapshot {} with {} assets", snapshotPath, snapshot.size());
+      return snapshot;
+    } catch (IOException | IllegalArgumentException e) {
+      log.warn("Failed to read snapshot {}", snapshotPath, e);
+      return null;
+    }
+  }
+
+  private void writeSnapshot(AssetSnapshot.Builder snapshot, Long lastUpdatedAt) {
+    if (snapshot == null) {
+      return;
+    }
+    var snapshotPath = getSnapshotPath();
+    try {
+      snapshot.write(snapshotPath, lastUpdatedAt);
+      log.info("Wrote snapshot {} with {} assets", snapshotPath, snapshot.size());
+    } catch (IOException e) {
+      log.warn("Failed to write snapshot {}", snapshotPath, e);
+    }
+  }
+
+  /**
+   * Lineage is fetched in the background for every table while the crawl continues, through the enricher's cache, so
+   * the lineage of unchanged tables is refreshed at most once per ttl. Once all tables are known, a table is updated
+   * again only if its upstream and downstream relationships to other synchronized tables differ from the ones last
+   * sent. Tables whose lineage could not be fetched keep their previous lineage and are fetched again in the next run.
+   */
+  private void synchronizeLineage(List<PendingLineage> pendingLineage, Map<String, String> tableIdsByFullName,
+      AssetCallback assetCallback) {
+    // forget tables that no longer exist or are no longer included
+    lineageByTableId.keySet().retainAll(tableIdsByFullName.values());
+    if (pendingLineage.isEmpty()) {
+      return;
+    }
+
+    log.info("Synchronizing lineage of {} tables", pendingLineage.size());
+    long lineageCount = 0;
+    for (var pending : pendingLineage) {
+      var asset = pending.asset();
+      TableLineage lineage;
+      try {
+        lineage = pending.lineage().join();
+      } catch (CompletionException e) {
+        log.warn("Failed to fetch lineage for table {}, retrying in the next run", asset.getInfo().getQualifiedName(), e.getCause());
+        continue;
+      }
+
+      Set<LineageRelationship> lineageRelationships = new LinkedHashSet<>();
+      addLineageRelationships(lineageRelationships, "upstream", lineage.upstreams(), tableIdsByFullName);
+      addLineageRelationships(lineageRelationships, "downstream", lineage.downstreams(), tableIdsByFullName);
+      if (lineageRelationships.equals(lineageByTableId.getOrDefault(asset.getId(), Set.of()))) {
+        continue;
+      }
+
+      lineageByTableId.put(asset.getId(), lineageRelationships);
+      addKnownLineage(asset);
+      assetCallback.onAssetUpdated(asset);
+      lineageCount++;
+    }
+    log.info("Synchronized lineage of {} tables", lineageCount);
+  }
+
+  /**
+   * Replaces the lineage relationships of the table with the ones last sent, so that updating a changed table does not
+   * remove its lineage in Data Mesh Manager.
+   */
+  private void addKnownLineage(Asset asset) {
+    var lineageRelationships = lineageByTableId.get(asset.getId());
+    if (lineageRelationships == null) {
+      return;
+    }
+
+    List<AssetRelationshipsInner> relationships = new ArrayList<>();
+    for (var relationship : asset.getRelationships()) {
+      if (!LINEAGE_RELATIONSHIP_TYPES.contains(relationship.getRelationshipType())) {
+        relationships.add(relationship);
+      }
+    }
+    for (var lineageRelationship : lineageRelationships) {
+      relationships.add(new AssetRelationshipsInner()
+          .relationshipType(lineageRelationship.relationshipType())
+          .assetId(lineageRelationship.assetId()));
+    }
+    asset.relationships(relationships);
+  }
+
+  private static void addLineageRelationships(Set<LineageRelationship> relationships, String relationshipType,
+      List<String> tableFullNames, Map<String, String> tableIdsByFullName) {
+    for (var tableFullName : tableFullNames) {
+      var tableId = tableIdsByFullName.get(tableFullName);
+      if (tableId == null) {
+        log.debug("Skipping {} lineage to table {}, it is not synchronized", relationshipType, tableFullName);
+        continue;
+      }
+      relationships.add(new LineageRelationship(relationshipType, tableId));
+    }
+  }
+
+  private record PendingLineage(Asset asset, CompletableFuture<TableLineage> lineage) {
+
+  }
+
+  private record LineageRelationship(String relationshipType, String assetId) {
+
   }
 
   private Long getLastUpdatedAt() {
@@ -81,6 +322,10 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
     if (lastUpdatedAt == null) {
       return 0L;
     }
+    if (!filterHash.equals(state.get("filterHash"))) {
+      log.info("Filter configuration changed since the last run, synchronizing all included assets");
+      return 0L;
+    }
     if (lastUpdatedAt instanceof Long) {
       return (Long) lastUpdatedAt;
     }
@@ -102,23 +347,16 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
   }
 
   private void setLastUpdatedAt(Long databricksLastUpdatedAtThisRunMax) {
-    Map<String, Object> state = Map.of("lastUpdatedAt", databricksLastUpdatedAtThisRunMax);
+    Map<String, Object> state = Map.of("lastUpdatedAt", databricksLastUpdatedAtThisRunMax, "filterHash", filterHash);
     dataMeshManagerStateRepository.saveState(state);
   }
 
-  private Optional<Asset> catalogToAsset(CatalogInfo catalog, Long databricksLastUpdatedAt) {
+  private Optional<Asset> catalogToAsset(CatalogInfo catalog) {
     if (!includeCatalog(catalog)) {
       log.debug("Skipping catalog {}", catalog.getFullName());
       return Optional.empty();
     }
 
-    if (alreadySynchronized(catalog, databricksLastUpdatedAt)) {
-      log.info("Catalog {} already synchronized", catalog.getFullName());
-      return Optional.empty();
-    }
-
-    log.info("Synchronizing catalog {}", catalog.getFullName());
-
     Asset asset = new Asset()
         .id(getCatalogNameAsIdAsWorkaround(catalog))
         .info(new AssetInfo()
@@ -141,19 +379,13 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
   }
 
 
-  protected Optional<Asset> schemaToAsset(SchemaInfo schema, CatalogInfo catalog, Long databricksLastUpdatedAt) {
+  protected Optional<Asset> schemaToAsset(SchemaInfo schema, CatalogInfo catalog) {
 
     if (!includeSchema(schema)) {
       log.debug("Skipping schema {}", schema.getFullName());
       return Optional.empty();
     }
 
-    if (alreadySynchronized(schema, databricksLastUpdatedAt)) {
-      log.info("Schema {} already synchronized", schema.getFullName());
-      return Optional.empty();
-    }
-
-    log.info("Synchronizing schema {}", schema.getFullName());
     Asset asset = new Asset()
         .id(schema.getSchemaId())
         .info(new AssetInfo()
@@ -173,19 +405,12 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
     return Optional.of(asset);
   }
 
-  protected Optional<Asset> tableToAsset(TableInfo table, SchemaInfo schema, Long databricksLastUpdatedAt) {
+  protected Optional<Asset> tableToAsset(TableInfo table, SchemaInfo schema) {
     if (!includeTable(table)) {
       log.debug("Skipping table {}", table.getFullName());
       return Optional.empty();
     }
 
-    if (alreadySynchronized(table, databricksLastUpdatedAt)) {
-      log.info("Table {} already synchronized", table.getFullName());
-      return Optional.empty();
-    }
-
-    log.info("Synchronizing table {}", table.getFullName());
-
     Asset asset = new Asset()
         .id(table.getTableId())
         .info(new AssetInfo()
@@ -216,35 +441,19 @@ public class DatabricksAssetsSupplier implements DataMeshManagerAssetsProvider {
   }
 
   protected boolean includeCatalog(CatalogInfo catalog) {
-    if (catalog.getCatalogType() == CatalogType.MANAGED_CATALOG) {
-      return true;
+    // unknown catalog types are deserialized as null
+    if (catalog.getCatalogType() == null || !catalogTypes.contains(catalog.getCatalogType())) {
+      return false;
     }
-
-    return false;
+    return catalogFilter.includes(catalog.getName(), catalog.getFullName());
   }
 
   protected boolean includeSchema(SchemaInfo schema) {
-    if (Objects.equals(schema.getName(), "information_schema")) {
-      return false;
-    }
-    return true;
+    return schemaFilter.includes(schema.getName(), schema.getFullName());
   }
 
   protected boolean includeTable(TableInfo table) {
-    return true;
-  }
-
-  private boolean alreadySynchronized(CatalogInfo catalogInfo, Long databricksLastUpdatedAt) {
-    return databricksLastUpdatedAt >= catalogInfo.getUpdatedAt();
+    return tableFilter.includes(table.getName(), table.getFullName());
   }
 
-  private boolean alreadySynchronized(SchemaInfo schema, Long databricksLastUpdatedAt) {
-    return databricksLastUpdatedAt >= schema.getUpdatedAt();
-  }
-
-  private boolean alreadySynchronized(TableInfo table, Long databricksLastUpdatedAt) {
-    return databricksLastUpdatedAt >= table.getUpdatedAt();
-  }
-
-
 }
@@ -0,0 +1,35 @@
+package datameshmanager.databricks;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.conn.HttpClientConnectionManager;
+
+/**
+ * Periodically closes pooled connections that were idle for longer than the keep-alive time, or whose keep-alive
+ * announced by the server has expired, so that the pool does not hand out connections the server already dropped.
+ */
+public class DatabricksIdleConnectionEvictor implements AutoCloseable {
+
+  private final ScheduledExecutorService scheduler;
+
+  public DatabricksIdleConnectionEvictor(HttpClientConnectionManager connectionManager, Duration keepalive) {
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "databricks-connection-evictor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    var interval = Math.max(1000, Math.min(keepalive.toMillis() / 2, 30_000));
+    scheduler.scheduleWithFixedDelay(() -> {
+      connectionManager.closeExpiredConnections();
+      connectionManager.closeIdleConnections(keepalive.toMillis(), TimeUnit.MILLISECONDS);
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+}
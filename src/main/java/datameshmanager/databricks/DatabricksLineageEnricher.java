@@ -0,0 +1,144 @@
+package datameshmanager.databricks;
+
+import com.databricks.sdk.WorkspaceClient;
+import com.databricks.sdk.core.http.Request;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches upstream and downstream table lineage from Unity Catalog in the background.
+ * At most {@code concurrency} requests run at the same time, concurrent requests for the same table share one
+ * request, and results are cached for {@code ttl}.
+ */
+public class DatabricksLineageEnricher {
+
+  private static final Logger log = LoggerFactory.getLogger(DatabricksLineageEnricher.class);
+
+  private final WorkspaceClient workspaceClient;
+  private final Duration ttl;
+  private final ExecutorService executor;
+  private final Map<String, CachedLineage> cache = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<TableLineage>> inFlight = new ConcurrentHashMap<>();
+
+  public DatabricksLineageEnricher(WorkspaceClient workspaceClient, int concurrency, Duration ttl) {
+    this.workspaceClient = workspaceClient;
+    this.ttl = ttl;
+    this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+      var thread = new Thread(runnable, "databricks-lineage");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public CompletableFuture<TableLineage> fetchLineage(String tableFullName) {
+    var cached = cache.get(tableFullName);
+    if (cached != null && cached.fetchedAt().plus(ttl).isAfter(Instant.now())) {
+      return CompletableFuture.completedFuture(cached.lineage());
+    }
+
+    var future = new CompletableFuture<TableLineage>();
+    var existing = inFlight.putIfAbsent(tableFullName, future);
+    if (existing != null) {
+      return existing;
+    }
+
+    try {
+      executor.execute(() -> {
+        // remove the request before completing it, so that callers that waited for it do not get it again
+        try {
+          var lineage = getTableLineage(tableFullName);
+          cache.put(tableFullName, new CachedLineage(lineage, Instant.now()));
+          inFlight.remove(tableFullName, future);
+          future.complete(lineage);
+        } catch (Exception e) {
+          inFlight.remove(tableFullName, future);
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlight.remove(tableFullName, future);
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Stops all requests. Requests that are still queued or running fail, so that nobody waits for them forever.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+    var exception = new IllegalStateException("Lineage enricher is shut down");
+    inFlight.values().forEach(future -> future.completeExceptionally(exception));
+    inFlight.clear();
+  }
+
+  private TableLineage getTableLineage(String tableFullName) {
+    log.debug("Fetching lineage for table {}", tableFullName);
+    var request = new Request(Request.GET, "/api/2.0/lineage-tracking/table-lineage")
+        .withQueryParam("table_name", tableFullName)
+        .withQueryParam("include_entity_lineage", "false")
+        .withHeader("Accept", "application/json");
+    try {
+      var response = workspaceClient.apiClient().execute(request, TableLineageResponse.class);
+      return new TableLineage(toTableFullNames(response.upstreams()), toTableFullNames(response.downstreams()));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to fetch lineage for table " + tableFullName, e);
+    }
+  }
+
+  private static List<String> toTableFullNames(List<LineageEntity> entities) {
+    if (entities == null) {
+      return List.of();
+    }
+    return entities.stream()
+        .map(LineageEntity::tableInfo)
+        .filter(Objects::nonNull)
+        .map(tableInfo -> tableInfo.catalogName() + "." + tableInfo.schemaName() + "." + tableInfo.name())
+        .distinct()
+        .toList();
+  }
+
+  /**
+   * Full names of the tables this table reads from and is read by.
+   */
+  public record TableLineage(List<String> upstreams, List<String> downstreams) {
+
+  }
+
+  private record CachedLineage(TableLineage lineage, Instant fetchedAt) {
+
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record TableLineageResponse(List<LineageEntity> upstreams, List<LineageEntity> downstreams) {
+
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record LineageEntity(@JsonProperty("tableInfo") LineageTableInfo tableInfo) {
+
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record LineageTableInfo(
+      @JsonProperty("name") String name,
+      @JsonProperty("catalog_name") String catalogName,
+      @JsonProperty("schema_name") String schemaName) {
+
+  }
+
+}
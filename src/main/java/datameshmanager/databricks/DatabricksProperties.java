@@ -1,12 +1,15 @@
 package datameshmanager.databricks;
 
+import com.databricks.sdk.service.catalog.CatalogType;
 import java.time.Duration;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "datameshmanager.client.databricks")
 public record DatabricksProperties(
     WorkspaceProperties workspace,
     AccountProperties account,
+    HttpProperties http,
     AssetsProperties assets,
     AccessmanagementProperties accessmanagement
 ) {
@@ -28,10 +31,46 @@ public record DatabricksProperties(
 
   }
 
+  public record HttpProperties(
+      Integer maxconnections,
+      Integer maxconnectionsperhost,
+      Duration keepalive
+  ) {
+
+  }
+
   public record AssetsProperties(
       Boolean enabled,
       String connectorid,
-      Duration pollinterval
+      Duration pollinterval,
+      LineageProperties lineage,
+      String snapshotfile,
+      CatalogsProperties catalogs,
+      FilterProperties schemas,
+      FilterProperties tables
+  ) {
+
+  }
+
+  public record CatalogsProperties(
+      List<String> include,
+      List<String> exclude,
+      List<CatalogType> types
+  ) {
+
+  }
+
+  public record FilterProperties(
+      List<String> include,
+      List<String> exclude
+  ) {
+
+  }
+
+  public record LineageProperties(
+      Boolean enabled,
+      Integer concurrency,
+      Duration ttl
   ) {
 
   }
@@ -0,0 +1,117 @@
+package datameshmanager.databricks;
+
+import com.databricks.sdk.WorkspaceClient;
+import com.databricks.sdk.service.iam.ListServicePrincipalsRequest;
+import com.databricks.sdk.service.iam.ServicePrincipal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches workspace service principals by their external id (e.g. {@code dataproduct-<id>}).
+ * The cache is filled by a paged listing at startup and updated whenever the connector creates a service principal,
+ * so that consumer events do not need a lookup per event.
+ */
+public class DatabricksServicePrincipalCache {
+
+  private static final Logger log = LoggerFactory.getLogger(DatabricksServicePrincipalCache.class);
+
+  private static final long PAGE_SIZE = 100;
+
+  private final WorkspaceClient workspaceClient;
+  private final Map<String, CompletableFuture<ServicePrincipal>> servicePrincipalsByExternalId = new ConcurrentHashMap<>();
+
+  public DatabricksServicePrincipalCache(WorkspaceClient workspaceClient) {
+    this.workspaceClient = workspaceClient;
+  }
+
+  /**
+   * Loads all service principals that have an external id. Failures are logged only, lookups fall back to the API.
+   */
+  public void load() {
+    try {
+      log.info("Loading service principals");
+      var servicePrincipals = workspaceClient.servicePrincipals().list(new ListServicePrincipalsRequest()
+          .setAttributes("id,externalId,displayName,active")
+          .setCount(PAGE_SIZE));
+      for (var servicePrincipal : servicePrincipals) {
+        if (servicePrincipal.getExternalId() != null) {
+          servicePrincipalsByExternalId.put(servicePrincipal.getExternalId(), CompletableFuture.completedFuture(servicePrincipal));
+        }
+      }
+      log.info("Loaded {} service principals", servicePrincipalsByExternalId.size());
+    } catch (Exception e) {
+      log.warn("Failed to load service principals, falling back to lookups on demand", e);
+    }
+  }
+
+  /**
+   * Returns the service principal with the given external id, creating it if it does not exist.
+   * Concurrent calls for the same external id wait for the first one, so at most one service principal is created.
+   * The remote calls are made outside of the map's locks, so calls for different external ids do not block each other.
+   */
+  public ServicePrincipal getOrCreate(ServicePrincipal servicePrincipal) {
+    var externalId = servicePrincipal.getExternalId();
+    var future = new CompletableFuture<ServicePrincipal>();
+    var existing = servicePrincipalsByExternalId.putIfAbsent(externalId, future);
+    if (existing != null) {
+      return join(existing);
+    }
+
+    try {
+      var result = findByExternalId(externalId).orElseGet(() -> create(servicePrincipal));
+      future.complete(result);
+      return result;
+    } catch (RuntimeException e) {
+      // forget the failure, so that the next call tries again
+      servicePrincipalsByExternalId.remove(externalId, future);
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Removes the service principal with the given external id, e.g. because it was deleted, so that the next call to
+   * {@link #getOrCreate(ServicePrincipal)} looks it up again.
+   */
+  public void evict(String externalId) {
+    servicePrincipalsByExternalId.remove(externalId);
+  }
+
+  private static ServicePrincipal join(CompletableFuture<ServicePrincipal> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private Optional<ServicePrincipal> findByExternalId(String externalId) {
+    Iterable<ServicePrincipal> servicePrincipals = workspaceClient.servicePrincipals()
+        .list(new ListServicePrincipalsRequest().setFilter("externalId eq \"" + escapeFilterValue(externalId) + "\""));
+    var iterator = servicePrincipals.iterator();
+    return iterator.hasNext() ? Optional.of(iterator.next()) : Optional.empty();
+  }
+
+  /**
+   * Escapes a string value for a SCIM filter expression.
+   */
+  private static String escapeFilterValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  private ServicePrincipal create(ServicePrincipal servicePrincipal) {
+    log.info("Creating service principal {}", servicePrincipal.getExternalId());
+    ServicePrincipal createdServicePrincipal = workspaceClient.servicePrincipals().create(servicePrincipal);
+    log.info("Created service principal ID={}, ExternalId={}", createdServicePrincipal.getId(), createdServicePrincipal.getExternalId());
+    return createdServicePrincipal;
+  }
+
+}
@@ -0,0 +1,55 @@
+package datameshmanager.databricks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AssetFilterTest {
+
+  @Test
+  void includesEverythingWithoutRules() {
+    var filter = AssetFilter.of(null, List.of());
+
+    assertThat(filter.includes("sales", "main.sales")).isTrue();
+  }
+
+  @Test
+  void globWithoutDotMatchesName() {
+    var filter = AssetFilter.of(List.of("*"), List.of("information_schema", "scratch_*", "tmp_?"));
+
+    assertThat(filter.includes("sales", "main.sales")).isTrue();
+    assertThat(filter.includes("information_schema", "main.information_schema")).isFalse();
+    assertThat(filter.includes("scratch_alice", "main.scratch_alice")).isFalse();
+    assertThat(filter.includes("tmp_1", "main.tmp_1")).isFalse();
+    assertThat(filter.includes("tmp_12", "main.tmp_12")).isTrue();
+  }
+
+  @Test
+  void globWithDotMatchesFullName() {
+    var filter = AssetFilter.of(null, List.of("dev_*.*"));
+
+    assertThat(filter.includes("sales", "dev_alice.sales")).isFalse();
+    assertThat(filter.includes("sales", "prod.sales")).isTrue();
+    assertThat(filter.includes("dev_alice", "prod.dev_alice")).isTrue();
+  }
+
+  @Test
+  void regexMatchesFullName() {
+    var filter = AssetFilter.of(List.of("regex:^dev_.*"), List.of("regex:.*\\.tmp_\\d+"));
+
+    assertThat(filter.includes("dev_x", "dev_x")).isTrue();
+    assertThat(filter.includes("prod", "prod")).isFalse();
+    assertThat(filter.includes("tmp_12", "dev_x.tmp_12")).isFalse();
+    assertThat(filter.includes("tmp_x", "dev_x.tmp_x")).isTrue();
+  }
+
+  @Test
+  void globIsNotARegex() {
+    var filter = AssetFilter.of(List.of("a+b"), null);
+
+    assertThat(filter.includes("a+b", "main.a+b")).isTrue();
+    assertThat(filter.includes("aab", "main.aab")).isFalse();
+  }
+
+}
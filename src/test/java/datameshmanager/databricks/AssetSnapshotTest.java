@@ -0,0 +1,106 @@
+package datameshmanager.databricks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AssetSnapshotTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void writeAndRead() throws Exception {
+    var path = tempDir.resolve("assets.snapshot");
+    AssetSnapshot.builder()
+        .add("b", 1, 10)
+        .add("a", 2, 20)
+        .add("ü-umlaut", 3, 30)
+        .write(path, 99);
+
+    var snapshot = AssetSnapshot.read(path);
+
+    assertThat(snapshot.size()).isEqualTo(3);
+    assertThat(snapshot.lastUpdatedAt()).isEqualTo(99);
+    assertThat(snapshot.id(0)).isEqualTo("a");
+    assertThat(snapshot.id(1)).isEqualTo("b");
+    assertThat(snapshot.id(2)).isEqualTo("ü-umlaut");
+    assertThat(snapshot.indexOf("a")).isEqualTo(0);
+    assertThat(snapshot.indexOf("ü-umlaut")).isEqualTo(2);
+    assertThat(snapshot.indexOf("c")).isEqualTo(-1);
+    assertThat(snapshot.fingerprint(1)).isEqualTo(1);
+    assertThat(snapshot.updatedAt(1)).isEqualTo(10);
+  }
+
+  @Test
+  void contains() throws Exception {
+    var path = tempDir.resolve("assets.snapshot");
+    AssetSnapshot.builder().add("a", 1, 10).write(path, 10);
+
+    var snapshot = AssetSnapshot.read(path);
+
+    assertThat(snapshot.contains("a", 1, 10)).isTrue();
+    assertThat(snapshot.contains("a", 1, 9)).isTrue();
+    assertThat(snapshot.contains("a", 1, 11)).isFalse();
+    assertThat(snapshot.contains("a", 2, 10)).isFalse();
+    assertThat(snapshot.contains("b", 1, 10)).isFalse();
+  }
+
+  @Test
+  void writeAndReadEmpty() throws Exception {
+    var path = tempDir.resolve("assets.snapshot");
+    AssetSnapshot.builder().write(path, 5);
+
+    var snapshot = AssetSnapshot.read(path);
+
+    assertThat(snapshot.size()).isZero();
+    assertThat(snapshot.lastUpdatedAt()).isEqualTo(5);
+    assertThat(snapshot.indexOf("a")).isEqualTo(-1);
+  }
+
+  @Test
+  void readTruncatedFile() throws Exception {
+    var path = tempDir.resolve("assets.snapshot");
+    AssetSnapshot.builder().add("a", 1, 10).add("b", 2, 20).write(path, 20);
+    var bytes = Files.readAllBytes(path);
+
+    for (int length = 0; length < bytes.length; length++) {
+      var truncated = tempDir.resolve("truncated-" + length + ".snapshot");
+      Files.write(truncated, Arrays.copyOf(bytes, length));
+
+      assertThatThrownBy(() -> AssetSnapshot.read(truncated))
+          .as("truncated to %d bytes", length)
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  @Test
+  void readCorruptCount() throws Exception {
+    var path = tempDir.resolve("assets.snapshot");
+    AssetSnapshot.builder().add("a", 1, 10).write(path, 10);
+    var bytes = Files.readAllBytes(path);
+
+    ByteBuffer.wrap(bytes).putInt(8, -1);
+    Files.write(path, bytes);
+    assertThatThrownBy(() -> AssetSnapshot.read(path)).isInstanceOf(IllegalArgumentException.class);
+
+    ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE);
+    Files.write(path, bytes);
+    assertThatThrownBy(() -> AssetSnapshot.read(path)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void readOtherFile() throws Exception {
+    var path = tempDir.resolve("other.txt");
+    Files.writeString(path, "this is not a snapshot file");
+
+    assertThatThrownBy(() -> AssetSnapshot.read(path)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+}
@@ -0,0 +1,124 @@
+package datameshmanager.databricks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.databricks.sdk.WorkspaceClient;
+import com.databricks.sdk.core.ApiClient;
+import com.databricks.sdk.core.http.Request;
+import datameshmanager.databricks.DatabricksLineageEnricher.LineageEntity;
+import datameshmanager.databricks.DatabricksLineageEnricher.LineageTableInfo;
+import datameshmanager.databricks.DatabricksLineageEnricher.TableLineageResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DatabricksLineageEnricherTest {
+
+  private static final TableLineageResponse RESPONSE = new TableLineageResponse(
+      List.of(new LineageEntity(new LineageTableInfo("a", "main", "sales"))),
+      List.of(new LineageEntity(new LineageTableInfo("c", "main", "sales"))));
+
+  private final WorkspaceClient workspaceClient = mock(WorkspaceClient.class);
+  private final ApiClient apiClient = mock(ApiClient.class);
+  private DatabricksLineageEnricher enricher;
+
+  @BeforeEach
+  void setUp() {
+    when(workspaceClient.apiClient()).thenReturn(apiClient);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (enricher != null) {
+      enricher.shutdown();
+    }
+  }
+
+  @Test
+  void concurrentRequestsShareOneCall() throws Exception {
+    var releaseRequest = new CountDownLatch(1);
+    when(apiClient.execute(any(Request.class), eq(TableLineageResponse.class))).thenAnswer(invocation -> {
+      releaseRequest.await(5, TimeUnit.SECONDS);
+      return RESPONSE;
+    });
+    enricher = new DatabricksLineageEnricher(workspaceClient, 4, Duration.ofHours(1));
+
+    var first = enricher.fetchLineage("main.sales.b");
+    var second = enricher.fetchLineage("main.sales.b");
+    releaseRequest.countDown();
+
+    assertThat(second).isSameAs(first);
+    var lineage = first.get(5, TimeUnit.SECONDS);
+    assertThat(lineage.upstreams()).containsExactly("main.sales.a");
+    assertThat(lineage.downstreams()).containsExactly("main.sales.c");
+    verify(apiClient, times(1)).execute(any(Request.class), eq(TableLineageResponse.class));
+  }
+
+  @Test
+  void cachesUntilTtlExpires() throws Exception {
+    when(apiClient.execute(any(Request.class), eq(TableLineageResponse.class))).thenReturn(RESPONSE);
+
+    enricher = new DatabricksLineageEnricher(workspaceClient, 1, Duration.ofHours(1));
+    enricher.fetchLineage("main.sales.b").get(5, TimeUnit.SECONDS);
+    enricher.fetchLineage("main.sales.b").get(5, TimeUnit.SECONDS);
+    verify(apiClient, times(1)).execute(any(Request.class), eq(TableLineageResponse.class));
+
+    enricher.shutdown();
+    enricher = new DatabricksLineageEnricher(workspaceClient, 1, Duration.ZERO);
+    enricher.fetchLineage("main.sales.b").get(5, TimeUnit.SECONDS);
+    enricher.fetchLineage("main.sales.b").get(5, TimeUnit.SECONDS);
+    verify(apiClient, times(3)).execute(any(Request.class), eq(TableLineageResponse.class));
+  }
+
+  @Test
+  void failuresAreNotCached() throws Exception {
+    when(apiClient.execute(any(Request.class), eq(TableLineageResponse.class)))
+        .thenThrow(new IOException("boom"))
+        .thenReturn(RESPONSE);
+    enricher = new DatabricksLineageEnricher(workspaceClient, 1, Duration.ofHours(1));
+
+    assertThatThrownBy(() -> enricher.fetchLineage("main.sales.b").join()).isInstanceOf(CompletionException.class);
+    var lineage = enricher.fetchLineage("main.sales.b").get(5, TimeUnit.SECONDS);
+
+    assertThat(lineage.upstreams()).containsExactly("main.sales.a");
+    verify(apiClient, times(2)).execute(any(Request.class), eq(TableLineageResponse.class));
+  }
+
+  @Test
+  void shutdownFailsPendingRequests() throws Exception {
+    var requestStarted = new CountDownLatch(1);
+    when(apiClient.execute(any(Request.class), eq(TableLineageResponse.class))).thenAnswer(invocation -> {
+      requestStarted.countDown();
+      Thread.sleep(10_000);
+      return RESPONSE;
+    });
+    enricher = new DatabricksLineageEnricher(workspaceClient, 1, Duration.ofHours(1));
+
+    var running = enricher.fetchLineage("main.sales.a");
+    assertThat(requestStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    var queued = enricher.fetchLineage("main.sales.b");
+    enricher.shutdown();
+
+    // the running request either fails because of the shutdown or because it is interrupted
+    assertThatThrownBy(() -> running.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+    assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> enricher.fetchLineage("main.sales.c").get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(RejectedExecutionException.class);
+  }
+
+}
@@ -0,0 +1,106 @@
+package datameshmanager.databricks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.databricks.sdk.WorkspaceClient;
+import com.databricks.sdk.service.iam.ServicePrincipal;
+import com.databricks.sdk.service.iam.ServicePrincipalsAPI;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DatabricksServicePrincipalCacheTest {
+
+  private final WorkspaceClient workspaceClient = mock(WorkspaceClient.class);
+  private final ServicePrincipalsAPI servicePrincipalsAPI = mock(ServicePrincipalsAPI.class);
+  private final DatabricksServicePrincipalCache cache = new DatabricksServicePrincipalCache(workspaceClient);
+
+  @BeforeEach
+  void setUp() {
+    when(workspaceClient.servicePrincipals()).thenReturn(servicePrincipalsAPI);
+    when(servicePrincipalsAPI.list(any())).thenReturn(List.of());
+  }
+
+  @Test
+  void createsOncePerExternalIdForConcurrentCalls() throws Exception {
+    var createStarted = new CountDownLatch(1);
+    var releaseCreate = new CountDownLatch(1);
+    when(servicePrincipalsAPI.create(any())).thenAnswer(invocation -> {
+      createStarted.countDown();
+      releaseCreate.await(5, TimeUnit.SECONDS);
+      return new ServicePrincipal().setId("1").setExternalId("dataproduct-a");
+    });
+
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      var first = executor.submit(() -> cache.getOrCreate(servicePrincipal("dataproduct-a")));
+      assertThat(createStarted.await(5, TimeUnit.SECONDS)).isTrue();
+      List<Future<ServicePrincipal>> others = List.of(
+          executor.submit(() -> cache.getOrCreate(servicePrincipal("dataproduct-a"))),
+          executor.submit(() -> cache.getOrCreate(servicePrincipal("dataproduct-a"))));
+      releaseCreate.countDown();
+
+      assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo("1");
+      for (var other : others) {
+        assertThat(other.get(5, TimeUnit.SECONDS).getId()).isEqualTo("1");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    verify(servicePrincipalsAPI, times(1)).create(any());
+  }
+
+  @Test
+  void retriesAfterFailedCreate() {
+    when(servicePrincipalsAPI.create(any()))
+        .thenThrow(new IllegalStateException("boom"))
+        .thenReturn(new ServicePrincipal().setId("1").setExternalId("dataproduct-a"));
+
+    assertThatThrownBy(() -> cache.getOrCreate(servicePrincipal("dataproduct-a")))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(cache.getOrCreate(servicePrincipal("dataproduct-a")).getId()).isEqualTo("1");
+
+    verify(servicePrincipalsAPI, times(2)).create(any());
+  }
+
+  @Test
+  void cacheHitMakesNoApiCall() {
+    when(servicePrincipalsAPI.list(any())).thenReturn(List.of(
+        new ServicePrincipal().setId("1").setExternalId("dataproduct-a"),
+        new ServicePrincipal().setId("2")));
+    cache.load();
+
+    assertThat(cache.getOrCreate(servicePrincipal("dataproduct-a")).getId()).isEqualTo("1");
+
+    verify(servicePrincipalsAPI, times(1)).list(any());
+    verify(servicePrincipalsAPI, never()).create(any());
+  }
+
+  @Test
+  void evictLooksUpAgain() {
+    when(servicePrincipalsAPI.create(any())).thenReturn(new ServicePrincipal().setId("1").setExternalId("dataproduct-a"));
+    cache.getOrCreate(servicePrincipal("dataproduct-a"));
+
+    cache.evict("dataproduct-a");
+    cache.getOrCreate(servicePrincipal("dataproduct-a"));
+
+    verify(servicePrincipalsAPI, times(2)).list(any());
+    verify(servicePrincipalsAPI, times(2)).create(any());
+  }
+
+  private static ServicePrincipal servicePrincipal(String externalId) {
+    return new ServicePrincipal().setDisplayName("Data Product " + externalId).setExternalId(externalId).setActive(true);
+  }
+
+}